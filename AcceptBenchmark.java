@@ -0,0 +1,103 @@
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+// Name: Duc Le
+// Date: 4/30/2025
+
+/**
+ * Accept Throughput Benchmark
+ * Simulates a reconnect storm against listeners opened by Lab4Server.openListeners
+ * and reports connections accepted per second with one listener versus N.
+ * Both runs use the same per-socket backlog so only the listener count differs.
+ * Usage: java AcceptBenchmark [listeners] [clientThreads] [seconds] [backlog]
+ */
+public class AcceptBenchmark {
+    private static final int DEFAULT_LISTENERS = 4;  // Sharded run compared against one listener
+
+    /**
+     * Main method to run the benchmark
+     * @param args Optional listener count, client thread count, duration in seconds and backlog
+     */
+    public static void main(String[] args) throws Exception {
+        int listeners = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_LISTENERS;
+        int clientThreads = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+        int backlog = args.length > 3 ? Integer.parseInt(args[3]) : Lab4Server.ACCEPT_BACKLOG;
+
+        // Warm up once so the first measured run is not penalised by JIT
+        runStorm(1, clientThreads, 1, backlog);
+
+        double single = runStorm(1, clientThreads, seconds, backlog);
+        double sharded = runStorm(listeners, clientThreads, seconds, backlog);
+        System.out.printf("Backlog %d per listening socket%n", backlog);
+        System.out.printf("1 listener:  %,.0f accepts/s%n", single);
+        System.out.printf("%d listeners: %,.0f accepts/s (%.2fx)%n", listeners, sharded, sharded / single);
+    }
+
+    /**
+     * Runs one reconnect storm and measures the accept rate
+     * @param listenerCount The number of listening sockets to open
+     * @param clientThreads The number of threads connecting in a loop
+     * @param seconds How long to run the storm
+     * @param backlog The pending connection queue length for each listening socket
+     * @return Connections accepted per second
+     */
+    private static double runStorm(int listenerCount, int clientThreads, int seconds, int backlog)
+            throws Exception {
+        List<ServerSocket> listeners = Lab4Server.openListeners(0, listenerCount, backlog);
+        int port = listeners.get(0).getLocalPort();
+        AtomicLong accepted = new AtomicLong();
+        AtomicBoolean running = new AtomicBoolean(true);
+
+        // Accept threads close each connection right away to measure accept cost only
+        List<Thread> threads = new ArrayList<>();
+        for (ServerSocket serverSocket : listeners) {
+            Thread acceptor = new Thread(() -> {
+                while (running.get()) {
+                    try {
+                        Socket socket = serverSocket.accept();
+                        accepted.incrementAndGet();
+                        socket.close();
+                    } catch (IOException e) {
+                        break;  // Listener closed at the end of the run
+                    }
+                }
+            });
+            acceptor.start();
+            threads.add(acceptor);
+        }
+
+        // Clients reconnect as fast as they can; linger 0 avoids exhausting ports with TIME_WAIT
+        for (int i = 0; i < clientThreads; i++) {
+            Thread client = new Thread(() -> {
+                while (running.get()) {
+                    try (Socket socket = new Socket()) {
+                        socket.setSoLinger(true, 0);
+                        socket.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+                    } catch (IOException e) {
+                        // Refused while the backlog is full; keep storming
+                    }
+                }
+            });
+            client.start();
+            threads.add(client);
+        }
+
+        long start = System.nanoTime();
+        long startCount = accepted.get();
+        Thread.sleep(seconds * 1000L);
+        double rate = (accepted.get() - startCount) / ((System.nanoTime() - start) / 1e9);
+
+        running.set(false);
+        for (ServerSocket serverSocket : listeners) {
+            serverSocket.close();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return rate;
+    }
+}
@@ -0,0 +1,319 @@
+import java.io.*;
+import java.net.*;
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+// Name: Duc Le
+// Date: 4/30/2025
+
+/**
+ * Headless Chat Connection
+ * This class implements the client side of the chat protocol without any
+ * dependency on Swing, so it can back the GUI client as well as bots,
+ * integration tests and load tools. Each connection owns one socket, one
+ * reader thread and a serial writer; events are delivered to registered
+ * ChatListeners and sends complete asynchronously.
+ */
+public class ChatConnection {
+    // Shared pool for connecting and reading, sized by the number of live sessions
+    private static final ExecutorService NETWORK_THREADS = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "chat-connection");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final int CONNECT_TIMEOUT = 5000;  // Milliseconds to wait for the server to accept
+    private static final long WRITER_KEEP_ALIVE = 30;  // Seconds an idle writer thread is kept
+
+    // Connection Settings
+    private final String host;  // Server address
+    private final int port;  // Server port
+    private final String username;  // Username announced to the server
+
+    // Network State
+    private final List<ChatListener> listeners = new CopyOnWriteArrayList<>();  // Registered listeners
+    private volatile Socket socket;  // Socket connection to server
+    private volatile PrintWriter out;  // Output stream to server
+    private volatile boolean isConnected = false;  // Connection status flag
+    private volatile boolean closing = false;  // Set when disconnect() was requested
+    private CompletableFuture<Void> connectFuture;  // Result of the first connect() call
+
+    // Serial writer: at most one thread, so lines go out in the order they were sent,
+    // and the thread exits when the connection is idle
+    private final ThreadPoolExecutor writer = new ThreadPoolExecutor(0, 1,
+            WRITER_KEEP_ALIVE, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread thread = new Thread(r, "chat-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    /**
+     * Constructor for ChatConnection
+     * @param host The server address
+     * @param port The server port
+     * @param username The username to announce after connecting
+     */
+    public ChatConnection(String host, int port, String username) {
+        this.host = host;
+        this.port = port;
+        this.username = username;
+    }
+
+    /**
+     * Registers a listener for server events
+     * @param listener The listener to add
+     */
+    public void addListener(ChatListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a previously registered listener
+     * @param listener The listener to remove
+     */
+    public void removeListener(ChatListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Connects to the server in the background, sends the username and starts reading.
+     * A connection is used once; later calls return the future of the first call.
+     * @return A future completed once connected, or completed exceptionally on failure
+     */
+    public synchronized CompletableFuture<Void> connect() {
+        if (connectFuture == null) {
+            connectFuture = CompletableFuture.runAsync(this::openSocket, NETWORK_THREADS);
+        }
+        return connectFuture;
+    }
+
+    /**
+     * Sends a chat message, prefixed with the current time and username
+     * @param text The message text
+     * @return A future completed once written, or completed exceptionally on failure
+     */
+    public CompletableFuture<Void> sendMessage(String text) {
+        String time = LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm"));
+        return sendLine("[" + time + "] " + username + ": " + text);
+    }
+
+    /**
+     * Tells other users that this user started typing
+     * @return A future completed once written, or completed exceptionally on failure
+     */
+    public CompletableFuture<Void> sendTyping() {
+        return sendLine("[TYPING]");
+    }
+
+    /**
+     * Tells other users that this user stopped typing
+     * @return A future completed once written, or completed exceptionally on failure
+     */
+    public CompletableFuture<Void> sendStopTyping() {
+        return sendLine("[STOP_TYPING]");
+    }
+
+    /**
+     * Requests one page of chat history search results
+     * @param query The search query
+     * @param page The 1-based page number
+     * @return A future completed once written, or completed exceptionally on failure
+     */
+    public CompletableFuture<Void> sendSearch(String query, int page) {
+        return sendLine("[SEARCH]" + page + ":" + query);
+    }
+
+    /**
+     * Announces that the user left, then closes the connection. A connect()
+     * still in progress is cancelled and its future completes exceptionally.
+     * @return A future completed once the leave message was sent and the socket closed
+     */
+    public CompletableFuture<Void> disconnect() {
+        boolean wasConnected;
+        synchronized (this) {
+            wasConnected = isConnected;
+            closing = true;
+            isConnected = false;
+        }
+        if (!wasConnected) {
+            closeSocket();
+            return CompletableFuture.completedFuture(null);
+        }
+        // Queued behind earlier sends so they still go out before the socket closes
+        return CompletableFuture.runAsync(() -> {
+            try {
+                writeLine("[System] " + username + " has left the chat");
+            } finally {
+                closeSocket();
+            }
+        }, writer);
+    }
+
+    /**
+     * @return true while the connection is open
+     */
+    public boolean isConnected() {
+        return isConnected;
+    }
+
+    /**
+     * @return The username of this connection
+     */
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * Opens the socket, sends the username and starts the reader thread
+     */
+    private void openSocket() {
+        Socket newSocket = new Socket();
+        try {
+            newSocket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+            BufferedReader in = new BufferedReader(new InputStreamReader(newSocket.getInputStream()));
+            CompletableFuture<Void> announced;
+            synchronized (this) {
+                if (closing) {
+                    throw new IOException("Disconnected before the connection was established");
+                }
+                socket = newSocket;
+                out = new PrintWriter(newSocket.getOutputStream(), false);
+                // Queue the username before any other send can be accepted
+                announced = CompletableFuture.runAsync(() -> writeLine(username), writer);
+                isConnected = true;
+            }
+            NETWORK_THREADS.execute(() -> readMessages(in));
+            announced.join();
+        } catch (IOException e) {
+            try {
+                newSocket.close();
+            } catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Queues one protocol line on the serial writer
+     * @param line The line to send
+     * @return A future completed once written, or completed exceptionally when
+     *         not connected or the write fails
+     */
+    private CompletableFuture<Void> sendLine(String line) {
+        if (!isConnected) {
+            return CompletableFuture.failedFuture(new IOException("Not connected"));
+        }
+        return CompletableFuture.runAsync(() -> writeLine(line), writer);
+    }
+
+    /**
+     * Writes and flushes one line; runs on the writer thread only
+     * @param line The line to write
+     */
+    private void writeLine(String line) {
+        PrintWriter current = out;
+        if (current == null) {
+            throw new CompletionException(new IOException("Not connected"));
+        }
+        current.println(line);
+        // PrintWriter swallows IOException; checkError() flushes and reports it
+        if (current.checkError()) {
+            throw new CompletionException(new IOException("Failed to send to server"));
+        }
+    }
+
+    /**
+     * Reads lines from the server until the connection closes
+     * @param in The input stream from the server
+     */
+    private void readMessages(BufferedReader in) {
+        Exception cause = null;
+        try {
+            String message;
+            while ((message = in.readLine()) != null) {
+                dispatch(message);
+            }
+        } catch (IOException e) {
+            if (!closing) {
+                cause = e;
+            }
+        } catch (RuntimeException e) {
+            cause = e;  // Unexpected failure in the read loop itself
+        } finally {
+            isConnected = false;
+            closeSocket();
+            Exception finalCause = cause;
+            notifyListeners(listener -> listener.onDisconnected(finalCause));
+        }
+    }
+
+    /**
+     * Delivers an event to every listener; a listener that throws is logged
+     * and skipped so it cannot end the session or starve the other listeners
+     * @param event The callback to invoke on each listener
+     */
+    private void notifyListeners(Consumer<ChatListener> event) {
+        for (ChatListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                System.out.println("Chat listener failed: " + e);
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Parses a server line and notifies listeners
+     * @param message The line received from the server
+     */
+    private void dispatch(String message) {
+        if (message.startsWith("[USERLIST]")) {
+            List<String> users = new ArrayList<>();
+            for (String user : message.substring(10).split(",")) {
+                if (!user.isEmpty()) {
+                    users.add(user);
+                }
+            }
+            notifyListeners(listener -> listener.onUserList(users));
+        } else if (message.startsWith("[SEARCH_PAGE]")) {
+            String[] parts = message.substring(13).split(":");
+            int page;
+            int pageCount;
+            try {
+                page = Integer.parseInt(parts[0]);
+                pageCount = Integer.parseInt(parts[1]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                e.printStackTrace();
+                return;
+            }
+            notifyListeners(listener -> listener.onSearchPage(page, pageCount));
+        } else if (message.startsWith("[SEARCH_RESULT]")) {
+            notifyListeners(listener -> listener.onSearchResult(message.substring(15)));
+        } else if (message.endsWith("is typing...")) {
+            notifyListeners(listener -> listener.onTyping(message));
+        } else if (message.isEmpty()) {
+            notifyListeners(listener -> listener.onTypingStopped());
+        } else {
+            notifyListeners(listener -> listener.onMessage(message));
+        }
+    }
+
+    /**
+     * Closes the socket connection if it is open
+     */
+    private void closeSocket() {
+        Socket current = socket;
+        try {
+            if (current != null && !current.isClosed()) {
+                current.close();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
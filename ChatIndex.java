@@ -0,0 +1,435 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Name: Duc Le
+// Date: 4/30/2025
+
+/**
+ * Chat History Index
+ * This class keeps an incremental inverted index over broadcast messages so the
+ * server can answer full-text searches. New messages go into an in-memory active
+ * segment; full segments are sealed into compact delta/varint encoded posting
+ * lists, small neighbouring segments are merged, and the oldest segment is
+ * dropped once the retention limit is reached.
+ */
+public class ChatIndex {
+    // Index Configuration
+    private static final int SEGMENT_SIZE = 1024;  // Messages per segment before sealing
+    private static final int MAX_SEGMENTS = 8;  // Sealed segments kept before merging
+    private static final int MAX_MESSAGES = 100000;  // Retention limit for indexed messages
+    private static final int MAX_PENDING = 10000;  // Messages waiting to be indexed before dropping
+    public static final int PAGE_SIZE = 10;  // Hits returned per search page
+
+    // Index State (guarded by lock)
+    private final Object lock = new Object();
+    private final LinkedList<Segment> sealedSegments = new LinkedList<>();  // Oldest first
+    private Segment activeSegment = new Segment(0);  // Segment receiving new messages
+    private long nextDocId = 0;  // Global id of the next message
+
+    // Background indexer so fan-out never waits on indexing; when it falls behind
+    // the oldest pending messages are dropped so the queue stays bounded
+    private final AtomicLong droppedMessages = new AtomicLong();  // Messages never indexed
+    private final ThreadPoolExecutor indexer = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(MAX_PENDING),
+            r -> {
+                Thread thread = new Thread(r, "chat-indexer");
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.DiscardOldestPolicy() {
+                @Override
+                public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                    droppedMessages.incrementAndGet();
+                    super.rejectedExecution(r, executor);
+                }
+            });
+
+    /**
+     * Queues a message for indexing and returns immediately
+     * @param message The message to index
+     */
+    public void add(String message) {
+        indexer.execute(() -> index(message));
+    }
+
+    /**
+     * @return The number of messages dropped because the indexer fell behind
+     */
+    public long getDroppedCount() {
+        return droppedMessages.get();
+    }
+
+    /**
+     * Searches the index for messages containing every term of the query
+     * @param query The search query
+     * @param page The 1-based page number to return
+     * @return The requested page of ranked hits
+     */
+    public SearchPage search(String query, int page) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        List<Hit> hits = new ArrayList<>();
+        if (!terms.isEmpty()) {
+            // Only the snapshot holds the lock, so scoring never stalls the indexer
+            List<Segment> segments;
+            synchronized (lock) {
+                segments = snapshot(terms);
+            }
+            collectHits(segments, terms, hits);
+        }
+
+        // Best score first, newest message first on ties
+        hits.sort((a, b) -> a.score != b.score
+                ? Double.compare(b.score, a.score)
+                : Long.compare(b.docId, a.docId));
+
+        int pageCount = Math.max(1, (hits.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        int currentPage = Math.min(Math.max(page, 1), pageCount);
+        int from = (currentPage - 1) * PAGE_SIZE;
+        int to = Math.min(from + PAGE_SIZE, hits.size());
+        List<String> messages = new ArrayList<>();
+        for (Hit hit : hits.subList(from, to)) {
+            messages.add(hit.message);
+        }
+        return new SearchPage(messages, hits.size(), currentPage, pageCount);
+    }
+
+    /**
+     * Splits text into lowercase letter/digit tokens
+     * @param text The text to tokenize
+     * @return The tokens in order of appearance
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); ) {
+            int codePoint = text.codePointAt(i);
+            if (Character.isLetterOrDigit(codePoint)) {
+                token.appendCodePoint(Character.toLowerCase(codePoint));
+            } else if (token.length() > 0) {
+                tokens.add(token.toString());
+                token.setLength(0);
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    /**
+     * Adds a message to the active segment, sealing and merging as needed
+     * @param message The message to index
+     */
+    private void index(String message) {
+        Map<String, Integer> termCounts = new HashMap<>();
+        for (String token : tokenize(message)) {
+            termCounts.merge(token, 1, Integer::sum);
+        }
+
+        synchronized (lock) {
+            int localId = activeSegment.messages.size();
+            activeSegment.messages.add(message);
+            for (Map.Entry<String, Integer> entry : termCounts.entrySet()) {
+                activeSegment.postings
+                        .computeIfAbsent(entry.getKey(), k -> new PostingList())
+                        .add(localId, entry.getValue());
+            }
+            nextDocId++;
+
+            if (activeSegment.messages.size() >= SEGMENT_SIZE) {
+                activeSegment.seal();
+                sealedSegments.add(activeSegment);
+                activeSegment = new Segment(nextDocId);
+                mergeSegments();
+                enforceRetention();
+            }
+        }
+    }
+
+    /**
+     * Merges the smallest adjacent pair of sealed segments while there are too many
+     */
+    private void mergeSegments() {
+        while (sealedSegments.size() > MAX_SEGMENTS) {
+            int best = 0;
+            int bestSize = Integer.MAX_VALUE;
+            for (int i = 0; i + 1 < sealedSegments.size(); i++) {
+                int size = sealedSegments.get(i).messages.size() + sealedSegments.get(i + 1).messages.size();
+                if (size < bestSize) {
+                    best = i;
+                    bestSize = size;
+                }
+            }
+            Segment older = sealedSegments.remove(best);
+            Segment newer = sealedSegments.remove(best);
+            sealedSegments.add(best, Segment.merge(older, newer));
+        }
+    }
+
+    /**
+     * Drops the oldest sealed segments once the retention limit is exceeded
+     */
+    private void enforceRetention() {
+        while (!sealedSegments.isEmpty()
+                && nextDocId - sealedSegments.getFirst().baseDocId > MAX_MESSAGES) {
+            sealedSegments.removeFirst();
+        }
+    }
+
+    /**
+     * Takes a consistent view of the index for one search. Sealed segments are
+     * immutable and shared; the active segment is copied for the query terms only.
+     * Must be called while holding lock.
+     * @param terms The distinct query terms
+     * @return The segments to search, oldest first
+     */
+    private List<Segment> snapshot(List<String> terms) {
+        List<Segment> segments = new ArrayList<>(sealedSegments);
+        Segment active = new Segment(activeSegment.baseDocId);
+        active.messages.addAll(activeSegment.messages);
+        for (String term : terms) {
+            PostingList postings = activeSegment.postings.get(term);
+            if (postings != null) {
+                active.postings.put(term, postings.copy());
+            }
+        }
+        segments.add(active);
+        return segments;
+    }
+
+    /**
+     * Scores every message that contains all query terms using tf-idf
+     * @param segments The snapshot of segments to search
+     * @param terms The distinct query terms
+     * @param hits The list receiving matching hits
+     */
+    private static void collectHits(List<Segment> segments, List<String> terms, List<Hit> hits) {
+        // Document frequencies across all segments
+        long totalDocs = 0;
+        int[] documentFrequency = new int[terms.size()];
+        for (Segment segment : segments) {
+            totalDocs += segment.messages.size();
+            for (int t = 0; t < terms.size(); t++) {
+                PostingList postings = segment.postings.get(terms.get(t));
+                if (postings != null) {
+                    documentFrequency[t] += postings.size;
+                }
+            }
+        }
+        double[] idf = new double[terms.size()];
+        for (int t = 0; t < terms.size(); t++) {
+            if (documentFrequency[t] == 0) {
+                return;  // A term with no postings means no message matches all terms
+            }
+            idf[t] = Math.log(1.0 + (double) totalDocs / documentFrequency[t]);
+        }
+
+        for (Segment segment : segments) {
+            // Dense per-segment arrays; a message matches once every term has counted it
+            int[] matchedTerms = new int[segment.messages.size()];
+            double[] scores = new double[segment.messages.size()];
+            boolean possible = true;
+            for (int t = 0; t < terms.size(); t++) {
+                PostingList postings = segment.postings.get(terms.get(t));
+                if (postings == null) {
+                    possible = false;
+                    break;
+                }
+                PostingList.Cursor cursor = postings.cursor();
+                while (cursor.next()) {
+                    if (matchedTerms[cursor.docId] == t) {
+                        matchedTerms[cursor.docId]++;
+                        scores[cursor.docId] += cursor.frequency * idf[t];
+                    }
+                }
+            }
+            if (!possible) {
+                continue;
+            }
+            for (int localId = 0; localId < matchedTerms.length; localId++) {
+                if (matchedTerms[localId] == terms.size()) {
+                    hits.add(new Hit(segment.baseDocId + localId, scores[localId],
+                            segment.messages.get(localId)));
+                }
+            }
+        }
+    }
+
+    /**
+     * One page of search results
+     */
+    public static class SearchPage {
+        public final List<String> messages;  // Messages on this page, best first
+        public final int totalHits;  // Number of matching messages
+        public final int page;  // 1-based page number
+        public final int pageCount;  // Total number of pages
+
+        public SearchPage(List<String> messages, int totalHits, int page, int pageCount) {
+            this.messages = messages;
+            this.totalHits = totalHits;
+            this.page = page;
+            this.pageCount = pageCount;
+        }
+    }
+
+    /**
+     * A scored search hit
+     */
+    private static class Hit {
+        private final long docId;
+        private final double score;
+        private final String message;
+
+        Hit(long docId, double score, String message) {
+            this.docId = docId;
+            this.score = score;
+            this.message = message;
+        }
+    }
+
+    /**
+     * A contiguous run of indexed messages with its own postings
+     */
+    private static class Segment {
+        private final long baseDocId;  // Global id of the first message in the segment
+        private final List<String> messages = new ArrayList<>();  // Stored messages by local id
+        private final Map<String, PostingList> postings = new HashMap<>();  // Term -> postings
+
+        Segment(long baseDocId) {
+            this.baseDocId = baseDocId;
+        }
+
+        /**
+         * Trims buffers once the segment stops receiving messages
+         */
+        void seal() {
+            ((ArrayList<String>) messages).trimToSize();
+            for (PostingList list : postings.values()) {
+                list.trim();
+            }
+        }
+
+        /**
+         * Merges two adjacent segments into one sealed segment
+         * @param older The older segment
+         * @param newer The newer segment, directly following the older one
+         * @return The merged segment
+         */
+        static Segment merge(Segment older, Segment newer) {
+            Segment merged = new Segment(older.baseDocId);
+            merged.messages.addAll(older.messages);
+            merged.messages.addAll(newer.messages);
+            int offset = older.messages.size();
+
+            Set<String> terms = new HashSet<>(older.postings.keySet());
+            terms.addAll(newer.postings.keySet());
+            for (String term : terms) {
+                PostingList list = new PostingList();
+                appendPostings(list, older.postings.get(term), 0);
+                appendPostings(list, newer.postings.get(term), offset);
+                merged.postings.put(term, list);
+            }
+            merged.seal();
+            return merged;
+        }
+
+        private static void appendPostings(PostingList target, PostingList source, int offset) {
+            if (source == null) {
+                return;
+            }
+            PostingList.Cursor cursor = source.cursor();
+            while (cursor.next()) {
+                target.add(cursor.docId + offset, cursor.frequency);
+            }
+        }
+    }
+
+    /**
+     * Posting list stored as varint encoded (docId delta, term frequency) pairs
+     */
+    private static class PostingList {
+        private byte[] data = new byte[8];
+        private int length = 0;  // Bytes in use
+        private int size = 0;  // Number of postings
+        private int lastDocId = 0;
+
+        /**
+         * Appends a posting; document ids must be added in increasing order
+         */
+        void add(int docId, int frequency) {
+            writeVarint(size == 0 ? docId : docId - lastDocId);
+            writeVarint(frequency);
+            lastDocId = docId;
+            size++;
+        }
+
+        void trim() {
+            data = Arrays.copyOf(data, length);
+        }
+
+        /**
+         * @return An independent, trimmed copy of this posting list
+         */
+        PostingList copy() {
+            PostingList copy = new PostingList();
+            copy.data = Arrays.copyOf(data, length);
+            copy.length = length;
+            copy.size = size;
+            copy.lastDocId = lastDocId;
+            return copy;
+        }
+
+        Cursor cursor() {
+            return new Cursor();
+        }
+
+        private void writeVarint(int value) {
+            while (true) {
+                if (length == data.length) {
+                    data = Arrays.copyOf(data, Math.max(8, data.length * 2));
+                }
+                if ((value & ~0x7F) == 0) {
+                    data[length++] = (byte) value;
+                    return;
+                }
+                data[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+        }
+
+        /**
+         * Sequential decoder over the posting list
+         */
+        class Cursor {
+            private int position = 0;
+            private boolean started = false;
+            int docId = 0;
+            int frequency = 0;
+
+            boolean next() {
+                if (position >= length) {
+                    return false;
+                }
+                int delta = readVarint();
+                docId = started ? docId + delta : delta;
+                started = true;
+                frequency = readVarint();
+                return true;
+            }
+
+            private int readVarint() {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while ((b & 0x80) != 0);
+                return value;
+            }
+        }
+    }
+}
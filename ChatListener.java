@@ -0,0 +1,62 @@
+import java.util.List;
+
+// Name: Duc Le
+// Date: 4/30/2025
+
+/**
+ * Chat Event Listener
+ * Callbacks fired by a ChatConnection for events received from the server.
+ * Callbacks run on the connection's reader thread, not the Swing event thread;
+ * UI code must hand work over to the EDT itself. All methods default to no-ops
+ * so bots and tools only override what they need.
+ */
+public interface ChatListener {
+    /**
+     * Called when a chat message is received
+     * @param message The message as broadcast by the server
+     */
+    default void onMessage(String message) {
+    }
+
+    /**
+     * Called when the server sends the current list of online users
+     * @param users The usernames currently online
+     */
+    default void onUserList(List<String> users) {
+    }
+
+    /**
+     * Called when another user starts typing
+     * @param status The typing notification, e.g. "alice is typing..."
+     */
+    default void onTyping(String status) {
+    }
+
+    /**
+     * Called when another user stops typing
+     */
+    default void onTypingStopped() {
+    }
+
+    /**
+     * Called at the start of a search response with the page actually returned
+     * @param page The 1-based page number sent by the server
+     * @param pageCount The total number of result pages
+     */
+    default void onSearchPage(int page, int pageCount) {
+    }
+
+    /**
+     * Called for each line of a search response
+     * @param line The result line without the protocol prefix
+     */
+    default void onSearchResult(String line) {
+    }
+
+    /**
+     * Called once when the connection is closed
+     * @param cause The error that closed the connection, or null on a normal close
+     */
+    default void onDisconnected(Exception cause) {
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+// Name: Duc Le
+// Date: 4/30/2025
+
+/**
+ * Chat Load Tool
+ * Opens many headless ChatConnection sessions against a running server, sends
+ * one broadcast from the first session and reports how many sessions received it.
+ * Usage: java ChatLoadTool [host] [port] [sessions]
+ */
+public class ChatLoadTool {
+    private static final long TIMEOUT_SECONDS = 30;  // Upper bound for each phase
+
+    /**
+     * Main method to run the load tool
+     * @param args Optional host, port and number of sessions
+     */
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 5555;
+        int sessions = args.length > 2 ? Integer.parseInt(args[2]) : 300;
+        String marker = "load-test-" + System.nanoTime();
+
+        // Every session counts down once when it sees the marker message
+        CountDownLatch delivered = new CountDownLatch(sessions);
+        List<ChatConnection> connections = new ArrayList<>();
+        List<CompletableFuture<Void>> connects = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < sessions; i++) {
+            ChatConnection connection = new ChatConnection(host, port, "bot" + i);
+            connection.addListener(new ChatListener() {
+                @Override
+                public void onMessage(String message) {
+                    if (message.contains(marker)) {
+                        delivered.countDown();
+                    }
+                }
+            });
+            connections.add(connection);
+            connects.add(connection.connect());
+        }
+        CompletableFuture.allOf(connects.toArray(new CompletableFuture<?>[0]))
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        System.out.printf("Connected %d sessions in %d ms%n", sessions,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+
+        // Give the server a moment to register every session before broadcasting
+        Thread.sleep(1000);
+        connections.get(0).sendMessage(marker).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        boolean all = delivered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        System.out.printf("Broadcast received by %d of %d sessions%s%n",
+                sessions - delivered.getCount(), sessions, all ? "" : " (timed out)");
+
+        List<CompletableFuture<Void>> disconnects = new ArrayList<>();
+        for (ChatConnection connection : connections) {
+            disconnects.add(connection.disconnect());
+        }
+        CompletableFuture.allOf(disconnects.toArray(new CompletableFuture<?>[0]))
+                .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        if (!all) {
+            System.exit(1);
+        }
+    }
+}
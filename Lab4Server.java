@@ -13,18 +13,95 @@ import java.util.*;
 public class Lab4Server {
     // Server Configuration
     private static final int PORT = 5555;  // Port number for server socket
+    private static final long MIN_SEARCH_INTERVAL = 1000;  // Milliseconds between searches per client
+    static final int ACCEPT_BACKLOG = 1024;  // Pending connections queued per listening socket
     
     // Client Management
     private static List<PrintWriter> clientWriters = new ArrayList<>();  // List of client output streams
     private static List<String> onlineUsers = new ArrayList<>();  // List of online usernames
 
+    // Chat History Search
+    private static ChatIndex chatIndex = new ChatIndex();  // Inverted index over broadcast messages
+
     /**
      * Main method to start the chat server
-     * @param args Command line arguments (not used)
+     * @param args Optional number of listener threads; more than one needs SO_REUSEPORT (Linux)
      */
     public static void main(String[] args) {
-        System.out.println("Server is running...");
-        try (ServerSocket serverSocket = new ServerSocket(PORT)) {
+        int listenerCount = 1;
+        if (args.length > 0) {
+            try {
+                listenerCount = Integer.parseInt(args[0]);
+            } catch (NumberFormatException e) {
+                System.out.println("Usage: java Lab4Server [listeners]");
+                return;
+            }
+        }
+
+        List<ServerSocket> listeners;
+        try {
+            listeners = openListeners(PORT, listenerCount, ACCEPT_BACKLOG);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return;
+        }
+        System.out.println("Server is running with " + listeners.size() + " listener(s)...");
+
+        // One accept thread per listening socket; the kernel spreads connections across them
+        for (int i = 0; i < listeners.size(); i++) {
+            ServerSocket serverSocket = listeners.get(i);
+            new Thread(() -> acceptClients(serverSocket), "accept-" + i).start();
+        }
+    }
+
+    /**
+     * Opens listening sockets on the same port. With more than one listener each
+     * socket is bound with SO_REUSEPORT; if the platform does not support it a
+     * single listener is opened instead.
+     * @param port The port to listen on, or 0 for an ephemeral port
+     * @param count The number of listening sockets wanted
+     * @param backlog The pending connection queue length for each socket
+     * @return The bound server sockets
+     * @throws IOException If a socket cannot be bound
+     */
+    static List<ServerSocket> openListeners(int port, int count, int backlog) throws IOException {
+        boolean reusePort = count > 1;
+        if (reusePort) {
+            try (ServerSocket probe = new ServerSocket()) {
+                if (!probe.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT)) {
+                    System.out.println("SO_REUSEPORT is not supported here, using a single listener.");
+                    reusePort = false;
+                    count = 1;
+                }
+            }
+        }
+
+        List<ServerSocket> listeners = new ArrayList<>();
+        try {
+            for (int i = 0; i < Math.max(count, 1); i++) {
+                ServerSocket serverSocket = new ServerSocket();
+                listeners.add(serverSocket);
+                if (reusePort) {
+                    serverSocket.setOption(StandardSocketOptions.SO_REUSEPORT, true);
+                }
+                // Later listeners join the port chosen by the first one
+                serverSocket.bind(new InetSocketAddress(i == 0 ? port : listeners.get(0).getLocalPort()), backlog);
+            }
+        } catch (IOException e) {
+            for (ServerSocket serverSocket : listeners) {
+                serverSocket.close();
+            }
+            throw e;
+        }
+        return listeners;
+    }
+
+    /**
+     * Accept loop for one listening socket
+     * @param serverSocket The listening socket to accept clients from
+     */
+    private static void acceptClients(ServerSocket serverSocket) {
+        try (serverSocket) {
             while (true) {
                 // Accept new client connections
                 Socket clientSocket = serverSocket.accept();
@@ -48,6 +125,7 @@ public class Lab4Server {
         private PrintWriter out;  // Output stream to client
         private BufferedReader in;  // Input stream from client
         private String username;  // Client's username
+        private long lastSearchTime = 0;  // When this client last searched
 
         /**
          * Constructor for ClientHandler
@@ -89,9 +167,14 @@ public class Lab4Server {
                     } else if (message.startsWith("[STOP_TYPING]")) {
                         // Broadcast stop typing notification to all other clients
                         broadcastToOthers("", out);
-                    } else if (message.startsWith("[USERLIST]")) {
-                        // Ignore user list messages from clients
+                    } else if (message.startsWith("[USERLIST]")
+                            || message.startsWith("[SEARCH_PAGE]")
+                            || message.startsWith("[SEARCH_RESULT]")) {
+                        // Ignore server-only messages sent by clients
                         continue;
+                    } else if (message.startsWith("[SEARCH]")) {
+                        // Answer search request for this client only
+                        handleSearch(message.substring(8));
                     } else {
                         System.out.println("Received: " + message);
                         broadcast(message);  // Broadcast message to all clients
@@ -128,6 +211,48 @@ public class Lab4Server {
                     writer.flush();
                 }
             }
+            chatIndex.add(message);  // Indexed in the background after fan-out
+        }
+
+        /**
+         * Answers a search request with one page of ranked results
+         * Request format: [SEARCH]page:query
+         * @param request The request without the [SEARCH] prefix
+         */
+        private void handleSearch(String request) {
+            // Each search scores the whole index, so limit how often a client may ask
+            long now = System.currentTimeMillis();
+            if (now - lastSearchTime < MIN_SEARCH_INTERVAL) {
+                synchronized (clientWriters) {
+                    out.println("[SEARCH_RESULT]Searching too fast, please wait a moment and try again.");
+                    out.flush();
+                }
+                return;
+            }
+            lastSearchTime = now;
+
+            int page = 1;
+            String query = request;
+            int separator = request.indexOf(':');
+            if (separator > 0) {
+                try {
+                    page = Integer.parseInt(request.substring(0, separator));
+                    query = request.substring(separator + 1);
+                } catch (NumberFormatException e) {
+                    // No page number given, treat the whole request as the query
+                }
+            }
+
+            ChatIndex.SearchPage results = chatIndex.search(query, page);
+            synchronized (clientWriters) {
+                out.println("[SEARCH_PAGE]" + results.page + ":" + results.pageCount);
+                out.println("[SEARCH_RESULT]Search \"" + query + "\": " + results.totalHits
+                        + " hit(s), page " + results.page + " of " + results.pageCount);
+                for (String hit : results.messages) {
+                    out.println("[SEARCH_RESULT]  " + hit);
+                }
+                out.flush();
+            }
         }
 
         /**
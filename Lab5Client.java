@@ -1,17 +1,17 @@
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
-import java.io.*;
-import java.net.*;
-import java.time.LocalTime;
-import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 // Name: Duc Le
 // Date: 4/30/2025
 /**
  * Chat Client Application
  * This class implements a GUI-based chat client that can connect to a chat server,
- * send and receive messages, and display online users.
+ * send and receive messages, and display online users. All networking is done by
+ * ChatConnection; this class only maps its events onto Swing components.
  */
 public class Lab5Client {
     // GUI Components
@@ -33,12 +33,15 @@ public class Lab5Client {
     private boolean isTyping = false;  // Flag to track typing status
 
     // Network Components
-    private Socket socket;  // Socket connection to server
-    private BufferedReader in;  // Input stream from server
-    private PrintWriter out;  // Output stream to server
-    private String username;  // Current user's username
-    private boolean isConnected = false;  // Connection status flag
-    private IncomingReader incomingReader;  // Thread for reading incoming messages
+    private ChatConnection connection;  // Headless connection to the server
+    private boolean isConnected = false;  // Connection status flag (EDT only)
+
+    // Search State
+    private static final String SEARCH_COMMAND = "/search";  // Prefix for search queries
+    private static final String MORE_COMMAND = "/more";  // Requests the next page of results
+    private String lastSearchQuery;  // Query of the most recent search
+    private int lastSearchPage = 0;  // Page last returned by the server
+    private int lastSearchPageCount = 0;  // Page count last returned by the server
 
     /**
      * Constructor - Initializes the GUI and sets up event listeners
@@ -89,7 +92,12 @@ public class Lab5Client {
         frame.addWindowListener(new WindowAdapter() {
             @Override
             public void windowClosing(WindowEvent e) {
-                disconnectFromServer();
+                // Give the leave message a moment to go out before the JVM exits
+                try {
+                    disconnectFromServer().get(1, TimeUnit.SECONDS);
+                } catch (Exception ex) {
+                    ex.printStackTrace();
+                }
             }
         });
     }
@@ -116,57 +124,65 @@ public class Lab5Client {
             return;
         }
         
+        int port;
         try {
-            // Initialize connection
-            initializeConnection();
-            
-            // Send username to server
-            sendUsername();
-            
-            // Update UI for connected state
-            updateUIForConnectedState();
-            
-            // Start message reader thread
-            startMessageReader();
-            
-            updateConnectionStatus(true);
-        } catch (IOException ex) {
-            handleConnectionError(ex);
+            port = Integer.parseInt(portField.getText().trim());
+        } catch (NumberFormatException ex) {
+            JOptionPane.showMessageDialog(frame, "Please enter a valid port number.");
+            return;
         }
+
+        // Connect in the background and update the UI once done
+        ChatConnection newConnection = new ChatConnection(serverField.getText().trim(), port,
+                usernameField.getText().trim());
+        newConnection.addListener(new UIChatListener(newConnection));
+        connection = newConnection;
+        connectButton.setEnabled(false);
+        newConnection.connect().whenComplete((ignored, ex) -> SwingUtilities.invokeLater(() -> {
+            connectButton.setEnabled(true);
+            if (connection != newConnection) {
+                return;  // Superseded by a later connect or disconnect
+            }
+            if (ex != null) {
+                connection = null;
+                handleConnectionError(ex.getCause() != null ? ex.getCause() : ex);
+            } else if (newConnection.isConnected()) {
+                updateUIForConnectedState();
+                updateConnectionStatus(true);
+            }
+        }));
     }
 
     /**
      * Disconnects from the server and cleans up resources
+     * @return A future completed once the connection is closed
      */
-    private void disconnectFromServer() {
-        if (isConnected && out != null) {
-            try {
-                // Send disconnect message
-                sendDisconnectMessage();
-                
-                // Stop message reader
-                stopMessageReader();
-                
-                // Close socket
-                closeSocket();
-                
-                // Clean up UI and resources
-                cleanupConnection();
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
+    private CompletableFuture<Void> disconnectFromServer() {
+        CompletableFuture<Void> closed = CompletableFuture.completedFuture(null);
+        if (isConnected && connection != null) {
+            // Send disconnect message and close socket
+            closed = connection.disconnect();
+            
+            // Clean up UI and resources
+            cleanupConnection();
         }
+        return closed;
     }
 
     /**
      * Sends a message to the server
      */
     private void sendMessage() {
-        if (out != null && !messageInput.getText().isEmpty()) {
-            String time = LocalTime.now().format(DateTimeFormatter.ofPattern("HH:mm"));
-            String message = "[" + time + "] " + username + ": " + messageInput.getText();
-            out.println(message);
-            out.flush();
+        if (connection != null && isSearchCommand(messageInput.getText())) {
+            sendSearchRequest(messageInput.getText().trim());
+            messageInput.setText("");
+            handleTypingStatusAfterMessage();
+        } else if (connection != null && !messageInput.getText().isEmpty()) {
+            String text = messageInput.getText();
+            connection.sendMessage(text).exceptionally(ex -> {
+                SwingUtilities.invokeLater(() -> messageArea.append("Message not sent: " + text + "\n"));
+                return null;
+            });
             messageInput.setText("");
             
             // Handle typing status
@@ -175,33 +191,109 @@ public class Lab5Client {
     }
 
     /**
-     * Thread for reading incoming messages from the server
+     * Checks whether the input is a search command rather than a chat message
+     * @param text The text from the input field
+     * @return true if the text is /search or /more
      */
-    private class IncomingReader implements Runnable {
-        public void stop() {
-            isConnected = false;
-            try {
-                if (socket != null && !socket.isClosed()) {
-                    socket.close();
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
+    private boolean isSearchCommand(String text) {
+        String command = text.trim().split("\\s+", 2)[0];
+        return command.equals(SEARCH_COMMAND) || command.equals(MORE_COMMAND);
+    }
+
+    /**
+     * Sends a search request to the server
+     * Usage: "/search words" for the first page, "/more" for the next page
+     * @param input The search command typed by the user
+     */
+    private void sendSearchRequest(String input) {
+        String[] parts = input.trim().split("\\s+", 2);
+        String command = parts[0];
+        String argument = parts.length > 1 ? parts[1].trim() : "";
+
+        if (command.equals(MORE_COMMAND)) {
+            if (!argument.isEmpty()) {
+                messageArea.append("Usage: /search <words>, then /more for the next page\n");
+            } else if (lastSearchQuery == null) {
+                messageArea.append("No previous search. Use /search <words>\n");
+            } else if (lastSearchPage >= lastSearchPageCount) {
+                messageArea.append("No more results for \"" + lastSearchQuery + "\"\n");
+            } else {
+                connection.sendSearch(lastSearchQuery, lastSearchPage + 1);
             }
+            return;
+        }
+
+        String query = argument;
+        if (query.isEmpty()) {
+            messageArea.append("Usage: /search <words>, then /more for the next page\n");
+            return;
+        }
+        lastSearchQuery = query;
+        lastSearchPage = 0;
+        lastSearchPageCount = 0;
+        connection.sendSearch(query, 1);
+    }
+
+    /**
+     * Listener that forwards connection events to the Swing components on the EDT
+     */
+    private class UIChatListener implements ChatListener {
+        private final ChatConnection source;  // Connection this listener belongs to
+
+        UIChatListener(ChatConnection source) {
+            this.source = source;
+        }
+
+        @Override
+        public void onMessage(String message) {
+            SwingUtilities.invokeLater(() -> messageArea.append(message + "\n"));
+        }
+
+        @Override
+        public void onUserList(List<String> users) {
+            SwingUtilities.invokeLater(() -> {
+                userListModel.clear();
+                for (String user : users) {
+                    userListModel.addElement(user);
+                }
+            });
+        }
+
+        @Override
+        public void onTyping(String status) {
+            SwingUtilities.invokeLater(() -> typingLabel.setText(status));
+        }
+
+        @Override
+        public void onTypingStopped() {
+            SwingUtilities.invokeLater(() -> typingLabel.setText(" "));
+        }
+
+        @Override
+        public void onSearchPage(int page, int pageCount) {
+            // Follow the server's page numbers so /more knows when results run out
+            SwingUtilities.invokeLater(() -> {
+                lastSearchPage = page;
+                lastSearchPageCount = pageCount;
+            });
         }
 
-        public void run() {
-            String message;
-            try {
-                while (isConnected) {
-                    message = in.readLine();
-                    if (message == null) break;
-                    handleIncomingMessage(message);
-                } 
-            } catch (IOException e) {
-                e.printStackTrace();
-            } finally {
-                cleanupConnection();
+        @Override
+        public void onSearchResult(String line) {
+            // Show search results inline in the chat area
+            SwingUtilities.invokeLater(() -> messageArea.append(line + "\n"));
+        }
+
+        @Override
+        public void onDisconnected(Exception cause) {
+            if (cause != null) {
+                cause.printStackTrace();
             }
+            SwingUtilities.invokeLater(() -> {
+                if (connection == source) {
+                    cleanupConnection();
+                }
+            });
         }
     }
 
@@ -324,9 +416,8 @@ public class Lab5Client {
      */
     private void setupTypingListener() {
         typingTimer = new Timer(TYPING_TIMEOUT, e -> {
-            if (isTyping && isConnected && out != null) {
-                out.println("[STOP_TYPING]");
-                out.flush();
+            if (isTyping && isConnected && connection != null) {
+                connection.sendStopTyping();
                 isTyping = false;
             }
         });
@@ -335,9 +426,8 @@ public class Lab5Client {
         messageInput.addKeyListener(new KeyAdapter() {
             @Override
             public void keyPressed(KeyEvent e) {
-                if (!isTyping && isConnected && out != null) {
-                    out.println("[TYPING]");
-                    out.flush();
+                if (!isTyping && isConnected && connection != null) {
+                    connection.sendTyping();
                     isTyping = true;
                 }
                 typingTimer.restart();
@@ -359,24 +449,6 @@ public class Lab5Client {
         }
     }
 
-    /**
-     * Initializes the connection to the server
-     */
-    private void initializeConnection() throws IOException {
-        username = usernameField.getText().trim();
-        socket = new Socket(serverField.getText(), Integer.parseInt(portField.getText()));
-        in = new BufferedReader(new InputStreamReader(socket.getInputStream()));
-        out = new PrintWriter(socket.getOutputStream(), false);
-    }
-
-    /**
-     * Sends the username to the server
-     */
-    private void sendUsername() {
-        out.println(username);
-        out.flush();
-    }
-
     /**
      * Updates the UI for connected state
      */
@@ -392,84 +464,17 @@ public class Lab5Client {
         frame.pack();
     }
 
-    /**
-     * Starts the message reader thread
-     */
-    private void startMessageReader() {
-        incomingReader = new IncomingReader();
-        Thread readerThread = new Thread(incomingReader);
-        readerThread.start();
-    }
-
-    /**
-     * Handles incoming messages from the server
-     * @param message The message received from the server
-     */
-    private void handleIncomingMessage(String message) {
-        if (message.startsWith("[USERLIST]")) {
-            // Update user list
-            SwingUtilities.invokeLater(() -> {
-                userListModel.clear();
-                String[] users = message.substring(10).split(",");
-                for (String user : users) {
-                    if (!user.isEmpty()) {
-                        userListModel.addElement(user);
-                    }
-                }
-            });
-        } else if (message.endsWith("is typing...")) {
-            // Update typing indicator
-            SwingUtilities.invokeLater(() -> {
-                typingLabel.setText(message);
-            });
-        } else if (message.isEmpty()) {
-            // Clear typing indicator
-            SwingUtilities.invokeLater(() -> {
-                typingLabel.setText(" ");
-            });
-        } else {
-            messageArea.append(message + "\n");
-        }
-    }
-
     /**
      * Handles typing status after sending a message
      */
     private void handleTypingStatusAfterMessage() {
         if (isTyping) {
-            out.println("[STOP_TYPING]");
-            out.flush();
+            connection.sendStopTyping();
             isTyping = false;
         }
         typingTimer.stop();
     }
 
-    /**
-     * Sends disconnect message to the server
-     */
-    private void sendDisconnectMessage() {
-        out.println("[System] " + username + " has left the chat");
-        out.flush();
-    }
-
-    /**
-     * Stops the message reader thread
-     */
-    private void stopMessageReader() {
-        if (incomingReader != null) {
-            incomingReader.stop();
-        }
-    }
-
-    /**
-     * Closes the socket connection
-     */
-    private void closeSocket() throws IOException {
-        if (socket != null && !socket.isClosed()) {
-            socket.close();
-        }
-    }
-
     /**
      * Cleans up connection resources and resets UI state
      */
@@ -486,20 +491,17 @@ public class Lab5Client {
         typingTimer.stop();
         isTyping = false;
         
-        // Clear the streams
-        in = null;
-        out = null;
-        socket = null;
-        incomingReader = null;
+        // Release the connection
+        connection = null;
         userListModel.clear();
         updateConnectionStatus(false);
     }
 
     /**
      * Handles connection errors by showing an error message
-     * @param ex The IOException that occurred
+     * @param ex The error that occurred
      */
-    private void handleConnectionError(IOException ex) {
+    private void handleConnectionError(Throwable ex) {
         JOptionPane.showMessageDialog(frame, "Failed to connect to server.");
         ex.printStackTrace();
     }